@@ -0,0 +1,384 @@
+import java.util.Arrays;
+
+/**
+ * Krylov subspace solvers for {@code A*x = b} with chaining setters: conjugate gradient, restarted GMRES and BiCGSTAB.<br>
+ * Each iteration costs one product with the {@link LinearOperator} plus O(n) vector work, so a sparse or matrix-free operator solves in O(nnz*iterations) time with O(n) extra memory instead of the O(n^3) of {@code LU()}.<br>
+ * Statistics of the last solve are kept until the next one.
+ * @author Wasupmacuz
+ */
+public class IterativeSolver
+{
+	private LinearOperator a;
+	private Preconditioner preconditioner = Preconditioner.none();
+	private double tolerance = 1e-10;
+	private int maxIterations;
+	private int restart = 30;
+
+	private int iterations;
+	private double residual;
+	private boolean converged;
+
+	/**
+	 * Creates a solver for the system described by {@code a}.<br>
+	 * The iteration limit defaults to {@code 10*a.size()}.
+	 * @param a The operator on the left side of {@code A*x = b}. A {@link Manix} must be square.
+	 */
+	public IterativeSolver(LinearOperator a)
+	{
+		this.a = a;
+		maxIterations = 10*a.size();
+	}
+
+	/**
+	 * Sets the relative tolerance. A solve converges once {@code ||b - A*x|| <= tolerance*||b||}.<br>
+	 * When {@code b} is all zeros, solves ignore any warm start and return the zero vector as converged without iterating.
+	 * @param tolerance A positive number.
+	 * @return This solver, for chaining.
+	 */
+	public IterativeSolver setTolerance(double tolerance)
+	{
+		if(tolerance <= 0)
+			throw new IllegalArgumentException("Tolerance must be positive, got " + tolerance + ".");
+		this.tolerance = tolerance;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of iterations before a solve gives up and returns its best estimate.
+	 * @param maxIterations A positive integer.
+	 * @return This solver, for chaining.
+	 */
+	public IterativeSolver setMaxIterations(int maxIterations)
+	{
+		if(maxIterations <= 0)
+			throw new IllegalArgumentException("Iteration limit must be positive, got " + maxIterations + ".");
+		this.maxIterations = maxIterations;
+		return this;
+	}
+
+	/**
+	 * Sets the number of GMRES iterations between restarts. Memory used by {@code gmres} grows linearly with this.
+	 * @param restart A positive integer.
+	 * @return This solver, for chaining.
+	 */
+	public IterativeSolver setRestart(int restart)
+	{
+		if(restart <= 0)
+			throw new IllegalArgumentException("Restart length must be positive, got " + restart + ".");
+		this.restart = restart;
+		return this;
+	}
+
+	/**
+	 * Sets the preconditioner applied by every method. {@code null} removes preconditioning.
+	 * @param preconditioner For example {@code Preconditioner.jacobi(A)} or {@code Preconditioner.ilu(A)}.
+	 * @return This solver, for chaining.
+	 */
+	public IterativeSolver setPreconditioner(Preconditioner preconditioner)
+	{
+		this.preconditioner = preconditioner == null ? Preconditioner.none() : preconditioner;
+		return this;
+	}
+
+	/**
+	 * Solves with the conjugate gradient method, starting from zero.
+	 * @param b The right side of {@code A*x = b}.
+	 * @return {@code cg(b, null)}
+	 */
+	public double[] cg(double[] b)
+	{
+		return cg(b, null);
+	}
+
+	/**
+	 * Solves with the preconditioned conjugate gradient method.<br>
+	 * Only valid when A (and the preconditioner) are symmetric positive definite.
+	 * @param b The right side of {@code A*x = b}.
+	 * @param x0 A warm start such as a prior solution, or {@code null} to start from zero. Left unaltered.
+	 * @return A new vector holding the solution estimate.
+	 */
+	public double[] cg(double[] b, double[] x0)
+	{
+		double[] x = start(b, x0);
+		double[] r = residual(b, x);
+		double bNorm = norm(b);
+		if(done(norm(r), bNorm, 0))
+			return x;
+
+		double[] z = preconditioner.apply(r);
+		double[] p = Arrays.copyOf(z, z.length);
+		double rz = dot(r, z);
+
+		for(int k = 1; k <= maxIterations; k++)
+		{
+			double[] ap = a.apply(p);
+			double pap = dot(p, ap);
+			if(pap <= 0) // A is not positive definite
+				break;
+			double alpha = rz/pap;
+			axpy(alpha, p, x);
+			axpy(-alpha, ap, r);
+			if(done(norm(r), bNorm, k))
+				return x;
+
+			z = preconditioner.apply(r);
+			double rzNew = dot(r, z);
+			double beta = rzNew/rz;
+			rz = rzNew;
+			for(int i = 0; i < p.length; i++)
+				p[i] = z[i] + beta*p[i];
+		}
+
+		converged = false;
+		return x;
+	}
+
+	/**
+	 * Solves with restarted GMRES, starting from zero.
+	 * @param b The right side of {@code A*x = b}.
+	 * @return {@code gmres(b, null)}
+	 */
+	public double[] gmres(double[] b)
+	{
+		return gmres(b, null);
+	}
+
+	/**
+	 * Solves with right-preconditioned, restarted GMRES. Works for any nonsingular A.<br>
+	 * Keeps {@code restart + 1} basis vectors, so extra memory is O(n*restart).
+	 * @param b The right side of {@code A*x = b}.
+	 * @param x0 A warm start such as a prior solution, or {@code null} to start from zero. Left unaltered.
+	 * @return A new vector holding the solution estimate.
+	 */
+	public double[] gmres(double[] b, double[] x0)
+	{
+		double[] x = start(b, x0);
+		double bNorm = norm(b);
+		int s = b.length;
+		int k = 0;
+
+		double[][] v = new double[restart + 1][];
+		double[][] h = new double[restart + 1][restart];
+		double[] cs = new double[restart];
+		double[] sn = new double[restart];
+		double[] g = new double[restart + 1];
+
+		while(true)
+		{
+			double[] r = residual(b, x);
+			double beta = norm(r);
+			if(done(beta, bNorm, k) || k >= maxIterations)
+				break;
+
+			v[0] = r;
+			scale(1/beta, v[0]);
+			Arrays.fill(g, 0);
+			g[0] = beta;
+
+			int j = 0;
+			while(j < restart && k < maxIterations)
+			{
+				double[] w = a.apply(preconditioner.apply(v[j]));
+				for(int i = 0; i <= j; i++) // modified Gram-Schmidt
+				{
+					h[i][j] = dot(w, v[i]);
+					axpy(-h[i][j], v[i], w);
+				}
+				h[j + 1][j] = norm(w);
+				v[j + 1] = w;
+				if(h[j + 1][j] != 0)
+					scale(1/h[j + 1][j], v[j + 1]);
+
+				for(int i = 0; i < j; i++) // apply previous Givens rotations to the new column
+				{
+					double t = cs[i]*h[i][j] + sn[i]*h[i + 1][j];
+					h[i + 1][j] = -sn[i]*h[i][j] + cs[i]*h[i + 1][j];
+					h[i][j] = t;
+				}
+				double d = Math.hypot(h[j][j], h[j + 1][j]);
+				cs[j] = d == 0 ? 1 : h[j][j]/d;
+				sn[j] = d == 0 ? 0 : h[j + 1][j]/d;
+				h[j][j] = d;
+				h[j + 1][j] = 0;
+				g[j + 1] = -sn[j]*g[j];
+				g[j] = cs[j]*g[j];
+
+				j++;
+				k++;
+				if(Math.abs(g[j]) <= tolerance*bNorm || d == 0)
+					break;
+			}
+
+			double[] y = new double[j]; // back substitution on the triangular Hessenberg system
+			for(int i = j - 1; i >= 0; i--)
+			{
+				double sum = g[i];
+				for(int c = i + 1; c < j; c++)
+					sum -= h[i][c]*y[c];
+				y[i] = h[i][i] == 0 ? 0 : sum/h[i][i];
+			}
+			double[] u = new double[s];
+			for(int i = 0; i < j; i++)
+				axpy(y[i], v[i], u);
+			axpy(1, preconditioner.apply(u), x);
+		}
+
+		return x;
+	}
+
+	/**
+	 * Solves with BiCGSTAB, starting from zero.
+	 * @param b The right side of {@code A*x = b}.
+	 * @return {@code bicgstab(b, null)}
+	 */
+	public double[] bicgstab(double[] b)
+	{
+		return bicgstab(b, null);
+	}
+
+	/**
+	 * Solves with the right-preconditioned biconjugate gradient stabilized method. Works for nonsymmetric A with O(n) extra memory.
+	 * @param b The right side of {@code A*x = b}.
+	 * @param x0 A warm start such as a prior solution, or {@code null} to start from zero. Left unaltered.
+	 * @return A new vector holding the solution estimate.
+	 */
+	public double[] bicgstab(double[] b, double[] x0)
+	{
+		double[] x = start(b, x0);
+		double[] r = residual(b, x);
+		double bNorm = norm(b);
+		if(done(norm(r), bNorm, 0))
+			return x;
+
+		double[] rHat = Arrays.copyOf(r, r.length);
+		double[] p = Arrays.copyOf(r, r.length);
+		double rho = dot(rHat, r);
+
+		for(int k = 1; k <= maxIterations; k++)
+		{
+			if(rho == 0) // breakdown
+				break;
+			double[] pHat = preconditioner.apply(p);
+			double[] ap = a.apply(pHat);
+			double rAp = dot(rHat, ap);
+			if(rAp == 0)
+				break;
+			double alpha = rho/rAp;
+			axpy(alpha, pHat, x);
+			axpy(-alpha, ap, r);
+			if(done(norm(r), bNorm, k))
+				return x;
+
+			double[] sHat = preconditioner.apply(r);
+			double[] as = a.apply(sHat);
+			double asas = dot(as, as);
+			if(asas == 0)
+				break;
+			double omega = dot(as, r)/asas;
+			axpy(omega, sHat, x);
+			axpy(-omega, as, r);
+			if(done(norm(r), bNorm, k) || omega == 0)
+				return x;
+
+			double rhoNew = dot(rHat, r);
+			double beta = (rhoNew/rho)*(alpha/omega);
+			rho = rhoNew;
+			for(int i = 0; i < p.length; i++)
+				p[i] = r[i] + beta*(p[i] - omega*ap[i]);
+		}
+
+		converged = false;
+		return x;
+	}
+
+	/**
+	 * The number of iterations (operator products for GMRES) performed by the last solve.
+	 * @return iterations, zero if the warm start was already good enough.
+	 */
+	public int getIterations()
+	{
+		return iterations;
+	}
+
+	/**
+	 * The relative residual {@code ||b - A*x|| / ||b||} reached by the last solve.
+	 * @return residual, as tracked by the solver's recurrences.
+	 */
+	public double getResidual()
+	{
+		return residual;
+	}
+
+	/**
+	 * Whether the last solve reached the tolerance within the iteration limit.
+	 * @return converged
+	 */
+	public boolean hasConverged()
+	{
+		return converged;
+	}
+
+	/**
+	 * Resets the statistics and copies the starting guess.<br>
+	 * The guess is dropped when {@code b} is all zeros, since x = 0 is then the exact solution and no relative tolerance can be reached from anywhere else.
+	 */
+	private double[] start(double[] b, double[] x0)
+	{
+		if(b.length != a.size())
+			throw new IndexOutOfBoundsException("Cannot solve a system of size " + a.size() + " with a right side of length " + b.length + ".");
+		if(x0 != null && x0.length != a.size())
+			throw new IndexOutOfBoundsException("Cannot warm start a system of size " + a.size() + " with a guess of length " + x0.length + ".");
+
+		iterations = 0;
+		residual = Double.POSITIVE_INFINITY;
+		converged = false;
+		return x0 == null || norm(b) == 0 ? new double[b.length] : Arrays.copyOf(x0, x0.length);
+	}
+
+	/**
+	 * Records the statistics of iteration {@code k} and tells whether the tolerance has been reached.
+	 */
+	private boolean done(double rNorm, double bNorm, int k)
+	{
+		iterations = k;
+		residual = bNorm == 0 ? rNorm : rNorm/bNorm;
+		converged = rNorm <= tolerance*bNorm;
+		return converged;
+	}
+
+	private double[] residual(double[] b, double[] x)
+	{
+		double[] r = a.apply(x);
+		for(int i = 0; i < r.length; i++)
+			r[i] = b[i] - r[i];
+		return r;
+	}
+
+	private static double dot(double[] x, double[] y)
+	{
+		double sum = 0;
+		for(int i = 0; i < x.length; i++)
+			sum += x[i]*y[i];
+		return sum;
+	}
+
+	private static double norm(double[] x)
+	{
+		return Math.sqrt(dot(x, x));
+	}
+
+	/**
+	 * y += alpha*x
+	 */
+	private static void axpy(double alpha, double[] x, double[] y)
+	{
+		for(int i = 0; i < y.length; i++)
+			y[i] += alpha*x[i];
+	}
+
+	private static void scale(double alpha, double[] x)
+	{
+		for(int i = 0; i < x.length; i++)
+			x[i] *= alpha;
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ * A square linear operator that only needs to know how to multiply itself by a vector.<br>
+ * {@link Manix} implements this through its matrix product, but callers can implement it matrix-free (sparse storage, stencils, etc.) and hand it to {@link IterativeSolver}.
+ * @author Wasupmacuz
+ */
+public interface LinearOperator
+{
+	/**
+	 * The number of rows (and columns) of this operator.
+	 * @return n, the size of the vectors this operator accepts and produces.
+	 */
+	public int size();
+
+	/**
+	 * Multiplies this operator by {@code x}.<br>
+	 * Must not alter {@code x}.
+	 * @param x A vector of length {@code size()}.
+	 * @return A new vector holding the product {@code A*x}.
+	 */
+	public double[] apply(double[] x);
+}
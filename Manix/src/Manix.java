@@ -5,7 +5,7 @@ import java.util.Arrays;
  * Matrix Manipulator with chaining functions. Basic matrix manipulating functions and some quality of life functions included.
  * @author Wasupmacuz
  */
-public class Manix
+public class Manix implements LinearOperator
 {
 	private Number[][] arr;
 	private int m, n;
@@ -341,6 +341,42 @@ public class Manix
 		return new Manix(C);
 	}
 
+	/**
+	 * Multiplies this matrix by the column vector {@code x}, the same product as {@code dot(x as an n by 1 matrix, Double.class)}.<br>
+	 * Works on primitive doubles so {@link IterativeSolver} can use this matrix as a {@link LinearOperator}.
+	 * @param x A vector with one element per column of this matrix.
+	 * @return A new vector with one element per row of this matrix.
+	 */
+	@Override
+	public double[] apply(double[] x)
+	{
+		if(getN() != x.length)
+			throw new IndexOutOfBoundsException("Cannot multiply matrix of width "+getN()+" with vector of length "+x.length + ".");
+
+		double[] y = new double[getM()];
+		for(int r = 0; r < getM(); r++)
+		{
+			Number[] a = getArr()[r];
+			double sum = 0;
+			for(int c = 0; c < getN(); c++)
+				sum += a[c].doubleValue()*x[c];
+			y[r] = sum;
+		}
+		return y;
+	}
+
+	/**
+	 * The size of this matrix as a {@link LinearOperator}.
+	 * @return m, the number of rows and columns.
+	 */
+	@Override
+	public int size()
+	{
+		if(getM() != getN())
+			throw new IndexOutOfBoundsException("Cannot use non-square matrices as a linear operator.");
+		return getM();
+	}
+
 	/**
 	 * Finds the determinant of a matrix using LU decomposition with time complexity O(2n^3/3) if it works.<br>
 	 * If it fails, use Cofactor expansion with time complexity O(n!). Yikes.
@@ -0,0 +1,189 @@
+import java.util.Arrays;
+
+/**
+ * Approximate inverse of a {@link LinearOperator} used to speed up {@link IterativeSolver}.<br>
+ * Jacobi and incomplete LU (ILU(0)) preconditioners are provided through static factories.
+ * @author Wasupmacuz
+ */
+public interface Preconditioner
+{
+	/**
+	 * Applies the approximate inverse to {@code r}.<br>
+	 * Must not alter {@code r}.
+	 * @param r A residual vector.
+	 * @return A new vector {@code z} approximately solving {@code A*z = r}.
+	 */
+	public double[] apply(double[] r);
+
+	/**
+	 * Provides the identity preconditioner, which leaves every vector unaltered.
+	 * @return A preconditioner returning a copy of its input.
+	 */
+	public static Preconditioner none()
+	{
+		return r -> Arrays.copyOf(r, r.length);
+	}
+
+	/**
+	 * Creates a Jacobi (diagonal) preconditioner from the diagonal of an operator.<br>
+	 * Useful for matrix-free operators which can still provide their diagonal.
+	 * @param diagonal The diagonal entries of the operator. None may be zero.
+	 * @return A preconditioner dividing each element by the respective diagonal entry.
+	 */
+	public static Preconditioner jacobi(double[] diagonal)
+	{
+		double[] inv = new double[diagonal.length];
+		for(int i = 0; i < inv.length; i++)
+		{
+			if(diagonal[i] == 0)
+				throw new ArithmeticException("Cannot build a Jacobi preconditioner. Diagonal element " + i + " is zero.");
+			inv[i] = 1/diagonal[i];
+		}
+
+		return r -> {
+			double[] z = new double[r.length];
+			for(int i = 0; i < z.length; i++)
+				z[i] = r[i]*inv[i];
+			return z;
+		};
+	}
+
+	/**
+	 * Creates a Jacobi (diagonal) preconditioner from the diagonal of a matrix.
+	 * @param matrix A square matrix with no zeros on its diagonal.
+	 * @return {@code jacobi(diagonal)}
+	 */
+	public static Preconditioner jacobi(Manix matrix)
+	{
+		if(matrix.getM() != matrix.getN())
+			throw new IndexOutOfBoundsException("Cannot build a preconditioner for non-square matrices.");
+
+		double[] diagonal = new double[matrix.getM()];
+		for(int i = 0; i < diagonal.length; i++)
+			diagonal[i] = matrix.getArr()[i][i].doubleValue();
+		return jacobi(diagonal);
+	}
+
+	/**
+	 * Creates an incomplete LU preconditioner with zero fill-in, ILU(0), from a dense matrix.<br>
+	 * Finding the nonzero pattern reads all n^2 elements. For large sparse systems, use {@code ilu(int[][], double[][])} instead.
+	 * @param matrix A square matrix with no zeros on its diagonal.
+	 * @return {@code ilu(columns, vals)} with the nonzeros of each row of {@code matrix}, plus its diagonal.
+	 */
+	public static Preconditioner ilu(Manix matrix)
+	{
+		if(matrix.getM() != matrix.getN())
+			throw new IndexOutOfBoundsException("Cannot build a preconditioner for non-square matrices.");
+
+		int s = matrix.getM();
+		Number[][] a = matrix.getArr();
+		int[][] cols = new int[s][];
+		double[][] vals = new double[s][];
+
+		for(int r = 0; r < s; r++)
+		{
+			int nnz = 0;
+			for(int c = 0; c < s; c++)
+				if(c == r || a[r][c].doubleValue() != 0)
+					nnz++;
+			cols[r] = new int[nnz];
+			vals[r] = new double[nnz];
+			int k = 0;
+			for(int c = 0; c < s; c++)
+			{
+				if(c == r || a[r][c].doubleValue() != 0)
+				{
+					cols[r][k] = c;
+					vals[r][k] = a[r][c].doubleValue();
+					k++;
+				}
+			}
+		}
+
+		return ilu(cols, vals);
+	}
+
+	/**
+	 * Creates an incomplete LU preconditioner with zero fill-in, ILU(0), from a matrix stored in compressed rows.<br>
+	 * L and U only keep the given nonzero pattern. Applying it costs O(nnz), and building it costs about O(nnz) times the number of nonzeros per row, rather than the O(n^3) of {@code LU()}.
+	 * @param columns The column indices of the nonzeros in each row, sorted ascending. Each row must include its diagonal. Left unaltered.
+	 * @param vals The values matching {@code columns}. Left unaltered.
+	 * @return A preconditioner performing a forward and backward substitution with the incomplete factors.
+	 */
+	public static Preconditioner ilu(int[][] columns, double[][] vals)
+	{
+		int s = columns.length;
+		if(vals.length != s)
+			throw new IndexOutOfBoundsException("Cannot build a preconditioner from " + s + " rows of columns and " + vals.length + " rows of values.");
+
+		int[][] cols = new int[s][];
+		double[][] lu = new double[s][];
+		int[] diag = new int[s]; // position of the diagonal in each row
+		for(int r = 0; r < s; r++)
+		{
+			cols[r] = Arrays.copyOf(columns[r], columns[r].length);
+			if(vals[r].length != cols[r].length)
+				throw new IndexOutOfBoundsException("Row " + r + " has " + cols[r].length + " columns but " + vals[r].length + " values.");
+			diag[r] = -1;
+			for(int k = 0; k < cols[r].length; k++)
+			{
+				if(cols[r][k] < 0 || cols[r][k] >= s || (k > 0 && cols[r][k] <= cols[r][k - 1]))
+					throw new IllegalArgumentException("Column indices of row " + r + " must be ascending and within [0, " + s + ").");
+				if(cols[r][k] == r)
+					diag[r] = k;
+			}
+			if(diag[r] < 0)
+				throw new IllegalArgumentException("Row " + r + " must include its diagonal.");
+			lu[r] = Arrays.copyOf(vals[r], vals[r].length);
+		}
+
+		int[] pos = new int[s]; // where each column sits in the current row, or -1
+		Arrays.fill(pos, -1);
+		for(int r = 0; r < s; r++)
+		{
+			for(int k = 0; k < cols[r].length; k++)
+				pos[cols[r][k]] = k;
+
+			for(int k = 0; k < diag[r]; k++) // eliminate with each earlier row inside the pattern
+			{
+				int i = cols[r][k];
+				double pivot = lu[i][diag[i]];
+				if(pivot == 0)
+					throw new ArithmeticException("Unable to find ILU(0) factorization for this matrix. Pivot " + i + " is zero.");
+				lu[r][k] /= pivot;
+				for(int j = diag[i] + 1; j < cols[i].length; j++)
+				{
+					int p = pos[cols[i][j]];
+					if(p >= 0)
+						lu[r][p] -= lu[r][k]*lu[i][j];
+				}
+			}
+
+			for(int k = 0; k < cols[r].length; k++)
+				pos[cols[r][k]] = -1;
+		}
+
+		for(int r = 0; r < s; r++)
+			if(lu[r][diag[r]] == 0)
+				throw new ArithmeticException("Unable to find ILU(0) factorization for this matrix. Pivot " + r + " is zero.");
+
+		return rv -> {
+			double[] z = new double[s];
+			for(int r = 0; r < s; r++) // forward substitution with unit lower triangle
+			{
+				double sum = rv[r];
+				for(int k = 0; k < diag[r]; k++)
+					sum -= lu[r][k]*z[cols[r][k]];
+				z[r] = sum;
+			}
+			for(int r = s - 1; r >= 0; r--) // backward substitution with upper triangle
+			{
+				double sum = z[r];
+				for(int k = diag[r] + 1; k < cols[r].length; k++)
+					sum -= lu[r][k]*z[cols[r][k]];
+				z[r] = sum/lu[r][diag[r]];
+			}
+			return z;
+		};
+	}
+}
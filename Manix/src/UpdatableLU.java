@@ -0,0 +1,396 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * LU factorization of a square matrix that absorbs rank-1 changes in O(n^2) instead of refactoring in O(n^3).<br>
+ * The matrix is factored once with partial pivoting. Each later change {@code A + u*v^T} is kept as a Sherman-Morrison correction, and the determinant follows from the matrix determinant lemma.<br>
+ * Solving costs O(n^2 + k*n) after k updates. The factorization refactors itself once the estimated error growth of the accumulated updates passes a threshold, or once there are as many updates as rows.<br>
+ * A singular matrix reports a determinant of zero and refuses to solve. While it stays singular, every change refactors in O(n^3), for example while a matrix is filled in from zeros.
+ * @author Wasupmacuz
+ */
+public class UpdatableLU
+{
+	private double[][] a; // the current matrix, kept for refactoring
+	private double[][] lu; // L below the diagonal, U on and above it, of the last factored matrix
+	private int[] piv;
+	private boolean singular;
+
+	private ArrayList<double[]> ws = new ArrayList<>(); // A_{j-1}^-1 * u_j for each update j
+	private ArrayList<double[]> vs = new ArrayList<>();
+	private ArrayList<Double> denominators = new ArrayList<>(); // 1 + v_j^T * w_j
+	private double det;
+	private double growth;
+	private double threshold = 1e8;
+	private int refactorCount;
+
+	/**
+	 * Factors a copy of {@code matrix}. Later changes to {@code matrix} are not seen by this factorization.
+	 * @param matrix A square matrix.
+	 */
+	public UpdatableLU(Manix matrix)
+	{
+		if(matrix.getM() != matrix.getN())
+			throw new IndexOutOfBoundsException("Cannot perform LU decomposition on non-square matrices.");
+
+		int s = matrix.getM();
+		a = new double[s][s];
+		for(int r = 0; r < s; r++)
+			for(int c = 0; c < s; c++)
+				a[r][c] = matrix.getArr()[r][c].doubleValue();
+		factor();
+		refactorCount = 0;
+	}
+
+	/**
+	 * Sets the estimated error growth past which updates trigger a refactor.<br>
+	 * Each update multiplies the estimate by {@code max(1, ||v||*||w|| / |1 + v^T*w|)}, which is large when the update brings the matrix close to singular.
+	 * @param threshold A number of at least 1. Smaller values refactor more often and keep results more accurate.
+	 * @return This factorization, for chaining.
+	 */
+	public UpdatableLU setRefactorThreshold(double threshold)
+	{
+		if(!(threshold >= 1))
+			throw new IllegalArgumentException("Refactor threshold must be at least 1, got " + threshold + ".");
+		this.threshold = threshold;
+		if(growth > threshold)
+			refactor();
+		return this;
+	}
+
+	/**
+	 * Replaces the matrix with {@code A + u*v^T}.
+	 * @param u A column vector with one element per row.
+	 * @param v A row vector with one element per column.
+	 * @return This factorization, for chaining.
+	 */
+	public UpdatableLU update(double[] u, double[] v)
+	{
+		int s = a.length;
+		if(u.length != s || v.length != s)
+			throw new IndexOutOfBoundsException("Cannot apply an update of size [" + u.length + ", " + v.length + "] to a matrix of size [" + s + ", " + s + "].");
+
+		boolean uZero = true, vZero = true;
+		for(int i = 0; i < s; i++)
+		{
+			uZero &= u[i] == 0;
+			vZero &= v[i] == 0;
+		}
+		if(uZero || vZero)
+			return this;
+
+		for(int r = 0; r < s; r++)
+			if(u[r] != 0)
+				for(int c = 0; c < s; c++)
+					a[r][c] += u[r]*v[c];
+		absorb(u, Arrays.copyOf(v, s));
+		return this;
+	}
+
+	/**
+	 * Sets a specified element to a specified value, the same change as {@code Manix.setVal}.
+	 * @param row The row of the element to be replaced.
+	 * @param col The column of the element to be replaced.
+	 * @param val The value to replace with.
+	 * @return This factorization, for chaining.
+	 */
+	public UpdatableLU setVal(int row, int col, Number val)
+	{
+		double delta = val.doubleValue() - a[row][col];
+		if(delta == 0)
+			return this;
+
+		a[row][col] = val.doubleValue();
+		double[] u = new double[a.length];
+		double[] v = new double[a.length];
+		u[row] = delta;
+		v[col] = 1;
+		absorb(u, v);
+		return this;
+	}
+
+	/**
+	 * Replaces an entire row of the matrix.
+	 * @param row The row to replace.
+	 * @param values The new row, one element per column.
+	 * @return This factorization, for chaining.
+	 */
+	public UpdatableLU setRow(int row, Number[] values)
+	{
+		int s = a.length;
+		if(values.length != s)
+			throw new IndexOutOfBoundsException("Cannot replace a row of length " + s + " with " + values.length + " values.");
+
+		double[] u = new double[s];
+		double[] v = new double[s];
+		u[row] = 1;
+		boolean changed = false;
+		for(int c = 0; c < s; c++)
+		{
+			v[c] = values[c].doubleValue() - a[row][c];
+			changed |= v[c] != 0;
+		}
+		if(!changed)
+			return this;
+
+		for(int c = 0; c < s; c++)
+			a[row][c] = values[c].doubleValue();
+		absorb(u, v);
+		return this;
+	}
+
+	/**
+	 * Replaces an entire column of the matrix.
+	 * @param col The column to replace.
+	 * @param values The new column, one element per row.
+	 * @return This factorization, for chaining.
+	 */
+	public UpdatableLU setColumn(int col, Number[] values)
+	{
+		int s = a.length;
+		if(values.length != s)
+			throw new IndexOutOfBoundsException("Cannot replace a column of length " + s + " with " + values.length + " values.");
+
+		double[] u = new double[s];
+		double[] v = new double[s];
+		v[col] = 1;
+		boolean changed = false;
+		for(int r = 0; r < s; r++)
+		{
+			u[r] = values[r].doubleValue() - a[r][col];
+			changed |= u[r] != 0;
+		}
+		if(!changed)
+			return this;
+
+		for(int r = 0; r < s; r++)
+			a[r][col] = values[r].doubleValue();
+		absorb(u, v);
+		return this;
+	}
+
+	/**
+	 * The determinant of the current matrix, kept up to date by every update in O(n).
+	 * @return The determinant as a Double. Zero if the matrix is singular.
+	 */
+	public Double det()
+	{
+		return singular ? 0d : det;
+	}
+
+	/**
+	 * Solves {@code A*x = b} for the current matrix in O(n^2 + k*n) after k updates.
+	 * @param b A vector with one element per row.
+	 * @return A new vector holding x.
+	 */
+	public double[] solve(double[] b)
+	{
+		if(b.length != a.length)
+			throw new IndexOutOfBoundsException("Cannot solve a system of size " + a.length + " with a right side of length " + b.length + ".");
+		if(singular)
+			throw new ArithmeticException("Cannot solve with a singular matrix.");
+
+		double[] x = baseSolve(b);
+		for(int j = 0; j < ws.size(); j++)
+			correct(x, j);
+		return x;
+	}
+
+	/**
+	 * Solves {@code A*X = B} for the current matrix, one column of {@code B} at a time.
+	 * @param b A matrix with one row per row of A.
+	 * @return A new matrix populated with Doubles holding X.
+	 */
+	public Manix solve(Manix b)
+	{
+		if(b.getM() != a.length)
+			throw new IndexOutOfBoundsException("Cannot solve a system of size " + a.length + " with a right side of height " + b.getM() + ".");
+
+		Double[][] x = new Double[b.getM()][b.getN()];
+		for(int c = 0; c < b.getN(); c++)
+		{
+			Number[] col = b.column(c);
+			double[] rhs = new double[col.length];
+			for(int r = 0; r < rhs.length; r++)
+				rhs[r] = col[r].doubleValue();
+			double[] sol = solve(rhs);
+			for(int r = 0; r < sol.length; r++)
+				x[r][c] = sol[r];
+		}
+		return new Manix(x);
+	}
+
+	/**
+	 * Factors the current matrix from scratch in O(n^3) and drops all accumulated updates.
+	 * @return This factorization, for chaining.
+	 */
+	public UpdatableLU refactor()
+	{
+		factor();
+		return this;
+	}
+
+	/**
+	 * Provides a copy of the current matrix, with all updates applied.
+	 * @return A new matrix populated with Doubles.
+	 */
+	public Manix getMatrix()
+	{
+		Double[][] out = new Double[a.length][a.length];
+		for(int r = 0; r < a.length; r++)
+			for(int c = 0; c < a.length; c++)
+				out[r][c] = a[r][c];
+		return new Manix(out);
+	}
+
+	/**
+	 * The number of updates absorbed since the last factorization.
+	 * @return k, the number of Sherman-Morrison corrections applied to every solve.
+	 */
+	public int getUpdateCount()
+	{
+		return ws.size();
+	}
+
+	/**
+	 * The number of times updates triggered a full refactor.
+	 * @return The count of automatic refactors since construction.
+	 */
+	public int getRefactorCount()
+	{
+		return refactorCount;
+	}
+
+	/**
+	 * Records {@code u*v^T} as a Sherman-Morrison correction, or refactors if that would cost accuracy.<br>
+	 * Assumes {@code a} already holds the updated matrix.
+	 */
+	private void absorb(double[] u, double[] v)
+	{
+		if(singular || ws.size() + 1 >= a.length)
+		{
+			autoRefactor();
+			return;
+		}
+
+		double[] w = solve(u);
+		double denominator = 1;
+		double vNorm = 0, wNorm = 0;
+		for(int i = 0; i < w.length; i++)
+		{
+			denominator += v[i]*w[i];
+			vNorm += v[i]*v[i];
+			wNorm += w[i]*w[i];
+		}
+		double amplification = Math.sqrt(vNorm*wNorm)/Math.abs(denominator);
+		if(Double.isNaN(amplification) || growth*Math.max(1, amplification) > threshold)
+		{
+			autoRefactor();
+			return;
+		}
+
+		ws.add(w);
+		vs.add(v);
+		denominators.add(denominator);
+		det *= denominator;
+		growth *= Math.max(1, amplification);
+	}
+
+	private void autoRefactor()
+	{
+		factor();
+		refactorCount++;
+	}
+
+	/**
+	 * Applies correction j to x: x -= w_j * (v_j^T * x) / (1 + v_j^T * w_j)
+	 */
+	private void correct(double[] x, int j)
+	{
+		double[] w = ws.get(j);
+		double[] v = vs.get(j);
+		double vx = 0;
+		for(int i = 0; i < x.length; i++)
+			vx += v[i]*x[i];
+		double f = vx/denominators.get(j);
+		for(int i = 0; i < x.length; i++)
+			x[i] -= f*w[i];
+	}
+
+	/**
+	 * LU factorization of {@code a} with partial pivoting.
+	 */
+	private void factor()
+	{
+		int s = a.length;
+		lu = new double[s][];
+		for(int r = 0; r < s; r++)
+			lu[r] = Arrays.copyOf(a[r], s);
+		piv = new int[s];
+		for(int i = 0; i < s; i++)
+			piv[i] = i;
+		ws.clear();
+		vs.clear();
+		denominators.clear();
+		growth = 1;
+		singular = false;
+		double baseDet = 1;
+
+		for(int k = 0; k < s; k++)
+		{
+			int p = k;
+			for(int r = k + 1; r < s; r++)
+				if(Math.abs(lu[r][k]) > Math.abs(lu[p][k]))
+					p = r;
+			if(lu[p][k] == 0)
+			{
+				singular = true;
+				baseDet = 0;
+				continue;
+			}
+			if(p != k)
+			{
+				double[] t = lu[p];
+				lu[p] = lu[k];
+				lu[k] = t;
+				int ti = piv[p];
+				piv[p] = piv[k];
+				piv[k] = ti;
+				baseDet = -baseDet;
+			}
+			baseDet *= lu[k][k];
+
+			for(int r = k + 1; r < s; r++)
+			{
+				double l = lu[r][k] /= lu[k][k];
+				if(l != 0)
+					for(int c = k + 1; c < s; c++)
+						lu[r][c] -= l*lu[k][c];
+			}
+		}
+		det = baseDet;
+	}
+
+	/**
+	 * Solves with the last factored matrix by forward and backward substitution.
+	 */
+	private double[] baseSolve(double[] b)
+	{
+		int s = lu.length;
+		double[] x = new double[s];
+		for(int r = 0; r < s; r++)
+		{
+			double sum = b[piv[r]];
+			for(int c = 0; c < r; c++)
+				sum -= lu[r][c]*x[c];
+			x[r] = sum;
+		}
+		for(int r = s - 1; r >= 0; r--)
+		{
+			double sum = x[r];
+			for(int c = r + 1; c < s; c++)
+				sum -= lu[r][c]*x[c];
+			x[r] = sum/lu[r][r];
+		}
+		return x;
+	}
+}